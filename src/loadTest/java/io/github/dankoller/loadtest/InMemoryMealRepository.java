@@ -0,0 +1,353 @@
+package io.github.dankoller.loadtest;
+
+import io.github.dankoller.entity.Meal;
+import io.github.dankoller.entity.Plan;
+import io.github.dankoller.repository.MealRepository;
+import io.github.dankoller.repository.MealSimilarityIndex;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * This class is an embedded stand-in for the database that is used by the load generator, so the load test can run
+ * without a PostgreSQL server. The data is kept in memory and every operation borrows a connection from a simulated
+ * connection pool. The connection can be held for a fixed time to simulate the round trip to the database, which makes
+ * waiting for connections visible in the report.
+ */
+public class InMemoryMealRepository implements MealRepository {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Meal> meals = new ArrayList<>();
+    private final Map<String, List<Meal>> mealsByCategory = new HashMap<>();
+    private final Map<String, Meal> mealsByName = new HashMap<>();
+    private final Set<String> duplicateMealNames = new HashSet<>();
+    private final MealSimilarityIndex similarityIndex = new MealSimilarityIndex();
+    private final NavigableMap<LocalDate, Plan> planHistory = new TreeMap<>();
+    private List<Plan> plan = List.of();
+
+    // Simulated connection pool
+    private final int poolSize;
+    private final long latencyNanos;
+    private final Semaphore connections;
+    private final AtomicInteger connectionsInUse = new AtomicInteger();
+    private final AtomicInteger peakConnectionsInUse = new AtomicInteger();
+    private final LongAdder connectionsAcquired = new LongAdder();
+    private final LongAdder connectionWaitNanos = new LongAdder();
+
+    /**
+     * This constructor creates a repository with a pool of 10 connections and no simulated latency.
+     */
+    public InMemoryMealRepository() {
+        this(10, 0);
+    }
+
+    /**
+     * @param poolSize      The number of connections in the simulated connection pool
+     * @param latencyMicros The time in microseconds a connection is held by every operation
+     */
+    public InMemoryMealRepository(int poolSize, long latencyMicros) {
+        this.poolSize = poolSize;
+        this.latencyNanos = latencyMicros * 1000;
+        this.connections = new Semaphore(poolSize, true);
+    }
+
+    @Override
+    public void addMeal(Meal meal) {
+        withConnection(() -> {
+            lock.writeLock().lock();
+            try {
+                meals.add(meal);
+                mealsByCategory.computeIfAbsent(meal.category(), key -> new ArrayList<>()).add(meal);
+                if (mealsByName.put(meal.name(), meal) != null) {
+                    duplicateMealNames.add(meal.name());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            similarityIndex.add(meal);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Meal> getMeals(String category) {
+        return withConnection(() -> {
+            lock.readLock().lock();
+            try {
+                if (category == null) {
+                    return new ArrayList<>(meals);
+                }
+                return new ArrayList<>(mealsByCategory.getOrDefault(category, List.of()));
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public void planMeal(List<Plan> plans) {
+        withConnection(() -> {
+            lock.writeLock().lock();
+            try {
+                plan = List.copyOf(plans);
+                for (Plan p : plans) {
+                    planHistory.put(p.date(), p);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isPlanExist() {
+        return withConnection(() -> {
+            lock.readLock().lock();
+            try {
+                return !plan.isEmpty();
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public List<String> getIngredients() {
+        return withConnection(() -> {
+            List<String> ingredients = new ArrayList<>();
+            Set<String> duplicates = new TreeSet<>();
+            lock.readLock().lock();
+            try {
+                for (Plan p : plan) {
+                    addIngredients(ingredients, p.breakfast(), duplicates);
+                    addIngredients(ingredients, p.lunch(), duplicates);
+                    addIngredients(ingredients, p.dinner(), duplicates);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            printDuplicates(duplicates);
+            return ingredients;
+        });
+    }
+
+    @Override
+    public Map<String, List<String>> getIngredients(Collection<String> mealNames) {
+        return withConnection(() -> {
+            Map<String, List<String>> ingredients = new HashMap<>();
+            Set<String> duplicates = new TreeSet<>();
+            lock.readLock().lock();
+            try {
+                for (String mealName : mealNames) {
+                    Meal meal = mealsByName.get(mealName);
+                    if (duplicateMealNames.contains(mealName)) {
+                        duplicates.add(mealName);
+                    } else if (meal != null) {
+                        ingredients.put(mealName, Arrays.asList(meal.ingredients()));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            printDuplicates(duplicates);
+            return ingredients;
+        });
+    }
+
+    @Override
+    public List<Meal> getSimilarMeals(String mealName, int limit) {
+        return withConnection(() -> similarityIndex.similarTo(mealName, limit));
+    }
+
+    @Override
+    public List<Meal> getSubstitutes(String mealName, int limit) {
+        List<String> ingredients = getIngredients();
+        return withConnection(() -> similarityIndex.substitutesFor(mealName, ingredients, limit));
+    }
+
+    @Override
+    public List<Plan> getPlans(LocalDate from, LocalDate to) {
+        return withConnection(() -> {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(planHistory.subMap(from, true, to, true).values());
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Map<String, Integer> getMostCookedMeals(LocalDate from, LocalDate to, int limit) {
+        return withConnection(() -> {
+            Map<String, Integer> counts = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (Plan p : planHistory.subMap(from, true, to, true).values()) {
+                    counts.merge(p.breakfast(), 1, Integer::sum);
+                    counts.merge(p.lunch(), 1, Integer::sum);
+                    counts.merge(p.dinner(), 1, Integer::sum);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Map<String, Integer> meals = new LinkedHashMap<>();
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .forEach(entry -> meals.put(entry.getKey(), entry.getValue()));
+            return meals;
+        });
+    }
+
+    @Override
+    public Map<YearMonth, Map<String, Integer>> getIngredientConsumption(LocalDate from, LocalDate to) {
+        return withConnection(() -> {
+            Map<YearMonth, Map<String, Integer>> consumption = new TreeMap<>();
+            Set<String> duplicates = new TreeSet<>();
+            lock.readLock().lock();
+            try {
+                for (Plan p : planHistory.subMap(from, true, to, true).values()) {
+                    List<String> ingredients = new ArrayList<>();
+                    addIngredients(ingredients, p.breakfast(), duplicates);
+                    addIngredients(ingredients, p.lunch(), duplicates);
+                    addIngredients(ingredients, p.dinner(), duplicates);
+                    Map<String, Integer> month = consumption.computeIfAbsent(YearMonth.from(p.date()),
+                            key -> new HashMap<>());
+                    for (String ingredient : ingredients) {
+                        month.merge(ingredient, 1, Integer::sum);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            printDuplicates(duplicates);
+            Map<YearMonth, Map<String, Integer>> sorted = new LinkedHashMap<>();
+            for (Map.Entry<YearMonth, Map<String, Integer>> month : consumption.entrySet()) {
+                Map<String, Integer> ingredients = new LinkedHashMap<>();
+                month.getValue().entrySet().stream()
+                        .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                                .thenComparing(Map.Entry.comparingByKey()))
+                        .forEach(entry -> ingredients.put(entry.getKey(), entry.getValue()));
+                sorted.put(month.getKey(), ingredients);
+            }
+            return sorted;
+        });
+    }
+
+    @Override
+    public Map<String, Integer> getDaysSinceLastCooked(LocalDate today) {
+        return withConnection(() -> {
+            Map<String, LocalDate> lastCooked = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (Plan p : planHistory.headMap(today, true).values()) {
+                    lastCooked.put(p.breakfast(), p.date());
+                    lastCooked.put(p.lunch(), p.date());
+                    lastCooked.put(p.dinner(), p.date());
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            Map<String, Integer> meals = new LinkedHashMap<>();
+            lastCooked.entrySet().stream()
+                    .sorted(Map.Entry.<String, LocalDate>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .forEach(entry -> meals.put(entry.getKey(),
+                            (int) ChronoUnit.DAYS.between(entry.getValue(), today)));
+            return meals;
+        });
+    }
+
+    /**
+     * @return The number of connections in the simulated connection pool
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return The highest number of connections that have been in use at the same time
+     */
+    public int getPeakConnectionsInUse() {
+        return peakConnectionsInUse.get();
+    }
+
+    /**
+     * @return The number of times a connection has been borrowed from the pool
+     */
+    public long getConnectionsAcquired() {
+        return connectionsAcquired.sum();
+    }
+
+    /**
+     * @return The total time in nanoseconds that operations have waited for a free connection
+     */
+    public long getConnectionWaitNanos() {
+        return connectionWaitNanos.sum();
+    }
+
+    /**
+     * This helper method is used to add the ingredients of a meal to a list. Like in the database, a meal name that
+     * isn't unique is an error: its ingredients are not added and the name is collected instead. The caller has to
+     * hold the read lock.
+     *
+     * @param ingredients The list the ingredients are added to
+     * @param mealName    The name of the meal
+     * @param duplicates  The set the meal name is added to if it isn't unique
+     */
+    private void addIngredients(List<String> ingredients, String mealName, Set<String> duplicates) {
+        if (duplicateMealNames.contains(mealName)) {
+            duplicates.add(mealName);
+            return;
+        }
+        Meal meal = mealsByName.get(mealName);
+        if (meal != null) {
+            ingredients.addAll(Arrays.asList(meal.ingredients()));
+        }
+    }
+
+    /**
+     * This helper method prints an error for every meal name that isn't unique, like the database driver does.
+     *
+     * @param duplicates The meal names that are not unique
+     */
+    private static void printDuplicates(Set<String> duplicates) {
+        for (String duplicate : duplicates) {
+            System.out.println("Error: The meal name '" + duplicate + "' is not unique");
+        }
+    }
+
+    /**
+     * This helper method runs an operation while holding a connection from the simulated connection pool.
+     *
+     * @param operation The operation to be run
+     * @param <T>       The result type of the operation
+     * @return The result of the operation
+     */
+    private <T> T withConnection(Supplier<T> operation) {
+        long start = System.nanoTime();
+        connections.acquireUninterruptibly();
+        connectionWaitNanos.add(System.nanoTime() - start);
+        connectionsAcquired.increment();
+        peakConnectionsInUse.accumulateAndGet(connectionsInUse.incrementAndGet(), Math::max);
+        try {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            return operation.get();
+        } finally {
+            connectionsInUse.decrementAndGet();
+            connections.release();
+        }
+    }
+}
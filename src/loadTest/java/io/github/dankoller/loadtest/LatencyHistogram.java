@@ -0,0 +1,91 @@
+package io.github.dankoller.loadtest;
+
+/**
+ * This class records latencies in a fixed number of buckets, so a long running load test doesn't need to keep every
+ * sample. Every power of two is split into 64 buckets, which keeps the error of a percentile below 2%.
+ * The histogram is not thread safe. Every session records into its own histogram and the histograms are merged
+ * for the report.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long totalCount = 0;
+    private long maxValue = 0;
+
+    /**
+     * @param nanos The latency in nanoseconds to be recorded
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[index(value)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * This method is used to add the recorded latencies of another histogram to this histogram.
+     *
+     * @param other The histogram to be added
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * @return The number of recorded latencies
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The highest recorded latency in nanoseconds
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * This method is used to get a percentile of the recorded latencies, e.g. 99.9 for the p999 latency.
+     *
+     * @param percentile The percentile between 0 and 100
+     * @return The latency in nanoseconds (upper bound of the bucket) or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
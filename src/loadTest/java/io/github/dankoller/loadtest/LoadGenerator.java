@@ -0,0 +1,438 @@
+package io.github.dankoller.loadtest;
+
+import io.github.dankoller.entity.Meal;
+import io.github.dankoller.entity.Plan;
+import io.github.dankoller.repository.MealRepository;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * This class simulates concurrent planner sessions against a meal repository and reports the throughput, the
+ * latencies, the errors and the connection usage. Every session is a thread that runs a random mix of the add, show,
+ * plan and save workloads until the test is over. By default, the embedded {@link InMemoryMealRepository} is used, so
+ * the load test runs offline. Any other repository with a public no-argument constructor can be given by its class
+ * name, e.g. io.github.dankoller.repository.Driver.
+ * <p>
+ * Run it with: ./gradlew loadTest --args="--sessions 32 --duration 300 --mix add=5,show=60,plan=20,save=15"
+ */
+public class LoadGenerator {
+    private static final List<String> CATEGORIES = List.of("breakfast", "lunch", "dinner");
+    private static final int INGREDIENT_POOL_SIZE = 200;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final Set<String> OPTIONS = Set.of("repository", "sessions", "warmup", "duration", "catalog", "mix",
+            "pool", "latency", "report");
+
+    private final Config config;
+    private final MealRepository repository;
+    private final AtomicLong mealCounter = new AtomicLong();
+    private final AtomicBoolean isMeasuring = new AtomicBoolean(false);
+    private final AtomicBoolean isTerminated = new AtomicBoolean(false);
+    private final AtomicInteger operationsInFlight = new AtomicInteger();
+    private final AtomicInteger peakOperationsInFlight = new AtomicInteger();
+    private final LongAdder intervalOperations = new LongAdder();
+    private final LongAdder intervalErrors = new LongAdder();
+    private final List<Session> sessions = new ArrayList<>();
+    private final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+
+    /**
+     * The operations of a planner session, see the corresponding commands in the Planner class.
+     */
+    enum Operation {
+        ADD, SHOW, PLAN, SAVE
+    }
+
+    /**
+     * This record holds the options of a load test.
+     *
+     * @param repository      "memory" for the embedded stand-in or the class name of a repository
+     * @param sessions        The number of concurrent sessions
+     * @param warmupSeconds   The time before the measurement starts
+     * @param durationSeconds The time of the measurement
+     * @param catalogSize     The number of meals that are added before the test starts
+     * @param mix             The ratio of every operation
+     * @param poolSize        The number of connections of the embedded stand-in
+     * @param latencyMicros   The simulated database latency of the embedded stand-in
+     * @param reportSeconds   The time between two progress reports
+     */
+    record Config(String repository, int sessions, int warmupSeconds, int durationSeconds, int catalogSize,
+                          Map<Operation, Integer> mix, int poolSize, long latencyMicros, int reportSeconds) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = parseArgs(args);
+        new LoadGenerator(config, createRepository(config)).run();
+    }
+
+    private LoadGenerator(Config config, MealRepository repository) {
+        this.config = config;
+        this.repository = repository;
+    }
+
+    /**
+     * This method is used to parse the command line options. Options that are not given keep their default value.
+     *
+     * @param args The command line options, e.g. --sessions 32
+     * @return The options of the load test
+     * @throws IllegalArgumentException If an option is unknown, has no value or has an invalid value
+     */
+    static Config parseArgs(String[] args) {
+        if (args.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing value for option: " + args[args.length - 1]);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || !OPTIONS.contains(args[i].substring(2))) {
+                throw new IllegalArgumentException("Unknown option: " + args[i] + ". Choose from: --" +
+                        String.join(", --", new TreeSet<>(OPTIONS)));
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return new Config(options.getOrDefault("repository", "memory"),
+                (int) parseNumber(options, "sessions", "16", 1, Integer.MAX_VALUE),
+                (int) parseNumber(options, "warmup", "5", 0, Integer.MAX_VALUE),
+                (int) parseNumber(options, "duration", "60", 1, Integer.MAX_VALUE),
+                (int) parseNumber(options, "catalog", "1000", 0, Integer.MAX_VALUE),
+                parseMix(options.getOrDefault("mix", "add=5,show=60,plan=20,save=15")),
+                (int) parseNumber(options, "pool", "10", 1, Integer.MAX_VALUE),
+                parseNumber(options, "latency", "0", 0, Long.MAX_VALUE / 1000),
+                (int) parseNumber(options, "report", "10", 1, Integer.MAX_VALUE));
+    }
+
+    /**
+     * This helper method is used by the parseArgs method to parse the value of a numeric option.
+     *
+     * @param options      The command line options by their name
+     * @param option       The name of the option
+     * @param defaultValue The value if the option is not given
+     * @param min          The lowest valid value
+     * @param max          The highest valid value
+     * @return The value of the option
+     * @throws IllegalArgumentException If the value is not a whole number between min and max
+     */
+    private static long parseNumber(Map<String, String> options, String option, String defaultValue, long min,
+                                    long max) {
+        String value = options.getOrDefault(option, defaultValue);
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number >= min && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(String.format("Invalid value for option --%s: %s. Choose a whole number " +
+                "from %d to %d", option, value, min, max));
+    }
+
+    /**
+     * This helper method is used by the parseArgs method to parse the ratio of every operation, e.g. add=5,show=60.
+     * Operations that are not given are not run.
+     *
+     * @param value The value of the mix option
+     * @return The ratio of every operation
+     * @throws IllegalArgumentException If an operation is unknown, a ratio is not a whole number of at least 0 or all
+     *                                  ratios are 0
+     */
+    private static Map<Operation, Integer> parseMix(String value) {
+        String operations = Arrays.stream(Operation.values())
+                .map(operation -> operation.name().toLowerCase(Locale.ROOT))
+                .collect(Collectors.joining(", "));
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String ratio : value.split(",")) {
+            String[] parts = ratio.split("=", -1);
+            Operation operation = null;
+            int share = -1;
+            if (parts.length == 2) {
+                try {
+                    operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+                    share = Integer.parseInt(parts[1].trim());
+                } catch (IllegalArgumentException ignored) {
+                    // Unknown operation or invalid ratio, reported below
+                }
+            }
+            if (operation == null || share < 0) {
+                throw new IllegalArgumentException(String.format("Invalid value for option --mix: %s. Use " +
+                        "operation=ratio, where operation is one of: %s and ratio is a whole number of at least 0",
+                        ratio, operations));
+            }
+            mix.put(operation, share);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a ratio above 0, " +
+                    "choose from: " + operations);
+        }
+        return mix;
+    }
+
+    private static MealRepository createRepository(Config config) throws ReflectiveOperationException {
+        if (config.repository().equals("memory")) {
+            return new InMemoryMealRepository(config.poolSize(), config.latencyMicros());
+        }
+        return (MealRepository) Class.forName(config.repository()).getConstructor().newInstance();
+    }
+
+    /**
+     * This method runs the load test. The catalog is added first, then the sessions are started. The measurement
+     * starts after the warmup and a progress report is printed regularly until the test is over.
+     *
+     * @throws InterruptedException If the load test is interrupted
+     */
+    private void run() throws InterruptedException {
+        PrintStream stdout = System.out;
+        // The repositories print their errors, so they are counted instead of being printed
+        ErrorCountingStream errors = new ErrorCountingStream();
+        System.setOut(errors);
+        try {
+            stdout.printf("Adding %d meals to %s%n", config.catalogSize(), repository.getClass().getSimpleName());
+            for (int i = 0; i < config.catalogSize(); i++) {
+                repository.addMeal(randomMeal(ThreadLocalRandom.current()));
+            }
+            if (errors.getCount() > 0) {
+                stdout.printf("%d errors while adding the meals%n", errors.getCount());
+            }
+            stdout.printf("Starting %d sessions (warmup %ds, duration %ds, mix %s)%n",
+                    config.sessions(), config.warmupSeconds(), config.durationSeconds(), config.mix());
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < config.sessions(); i++) {
+                Session session = new Session();
+                sessions.add(session);
+                Thread thread = new Thread(session, "session-" + i);
+                threads.add(thread);
+                thread.start();
+            }
+            Thread.sleep(config.warmupSeconds() * 1000L);
+            peakOperationsInFlight.set(operationsInFlight.get());
+            isMeasuring.set(true);
+            long start = System.nanoTime();
+            long end = start + config.durationSeconds() * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                long intervalStart = System.nanoTime();
+                Thread.sleep(Math.max(1, Math.min(config.reportSeconds() * 1000L, (end - intervalStart) / 1_000_000)));
+                double seconds = (System.nanoTime() - intervalStart) / 1e9;
+                stdout.printf("[%4ds] %10.1f ops/s, %d errors%n", (System.nanoTime() - start) / 1_000_000_000L,
+                        intervalOperations.sumThenReset() / seconds, intervalErrors.sumThenReset());
+            }
+            isMeasuring.set(false);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            isTerminated.set(true);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            printReport(stdout, elapsedSeconds);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    /**
+     * This method prints the results of the measurement.
+     *
+     * @param out            The stream the report is printed to
+     * @param elapsedSeconds The duration of the measurement
+     */
+    private void printReport(PrintStream out, double elapsedSeconds) {
+        out.println();
+        out.printf("%-6s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long operationErrors = 0;
+            for (Session session : sessions) {
+                histogram.add(session.histograms.get(operation));
+                operationErrors += session.errors.get(operation);
+            }
+            total.add(histogram);
+            totalErrors += operationErrors;
+            printLine(out, operation.name().toLowerCase(Locale.ROOT), histogram, operationErrors, elapsedSeconds);
+        }
+        printLine(out, "total", total, totalErrors, elapsedSeconds);
+        out.println();
+        out.printf("Peak operations in flight: %d%n", peakOperationsInFlight.get());
+        if (repository instanceof InMemoryMealRepository stub) {
+            out.printf("Connections: pool %d, peak in use %d, acquired %d, average wait %.3f ms%n",
+                    stub.getPoolSize(), stub.getPeakConnectionsInUse(), stub.getConnectionsAcquired(),
+                    stub.getConnectionWaitNanos() / 1e6 / Math.max(1, stub.getConnectionsAcquired()));
+        } else {
+            out.printf("Connections: not available, %s doesn't report its connection usage%n",
+                    repository.getClass().getSimpleName());
+        }
+    }
+
+    private void printLine(PrintStream out, String name, LatencyHistogram histogram, long errors, double seconds) {
+        out.printf("%-6s %10d %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n", name, histogram.getTotalCount(), errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    /**
+     * This helper method creates a meal with a unique name and 3 to 8 ingredients from a fixed pool, so that meals
+     * share ingredients like real recipes do. Names and ingredients only contain letters, like in the Planner.
+     *
+     * @param random The random generator of the calling thread
+     * @return A new meal
+     */
+    private Meal randomMeal(Random random) {
+        String name = "meal " + letters(mealCounter.incrementAndGet());
+        String category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+        Set<String> ingredients = new LinkedHashSet<>();
+        int count = 3 + random.nextInt(6);
+        while (ingredients.size() < count) {
+            ingredients.add("ingredient " + letters(random.nextInt(INGREDIENT_POOL_SIZE)));
+        }
+        return new Meal(name, category, ingredients.toArray(new String[0]));
+    }
+
+    private static String letters(long number) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append(ALPHABET.charAt((int) (number % ALPHABET.length())));
+            number /= ALPHABET.length();
+        } while (number > 0);
+        return letters.toString();
+    }
+
+    /**
+     * This class is a simulated planner session. It records the latencies and errors of its own operations, so the
+     * sessions don't have to share any state while the test is running. An operation has failed if it has thrown an
+     * exception or if the repository has printed an error while the operation was running.
+     */
+    private class Session implements Runnable {
+        private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        private final Operation[] schedule;
+        // Only written by the thread of the session, see ErrorCountingStream
+        private int printedErrors = 0;
+
+        Session() {
+            List<Operation> operations = new ArrayList<>();
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new LatencyHistogram());
+                errors.put(operation, 0L);
+                for (int i = 0; i < config.mix().getOrDefault(operation, 0); i++) {
+                    operations.add(operation);
+                }
+            }
+            schedule = operations.toArray(new Operation[0]);
+        }
+
+        @Override
+        public void run() {
+            Random random = ThreadLocalRandom.current();
+            currentSession.set(this);
+            while (!isTerminated.get()) {
+                Operation operation = schedule[random.nextInt(schedule.length)];
+                boolean isMeasured = isMeasuring.get();
+                peakOperationsInFlight.accumulateAndGet(operationsInFlight.incrementAndGet(), Math::max);
+                printedErrors = 0;
+                long start = System.nanoTime();
+                boolean isFailed = false;
+                try {
+                    execute(operation, random);
+                } catch (RuntimeException e) {
+                    isFailed = true;
+                } finally {
+                    operationsInFlight.decrementAndGet();
+                }
+                isFailed |= printedErrors > 0;
+                long latency = System.nanoTime() - start;
+                if (isMeasured && isMeasuring.get()) {
+                    histograms.get(operation).record(latency);
+                    intervalOperations.increment();
+                    if (isFailed) {
+                        errors.merge(operation, 1L, Long::sum);
+                        intervalErrors.increment();
+                    }
+                }
+            }
+        }
+
+        private void execute(Operation operation, Random random) {
+            switch (operation) {
+                case ADD -> repository.addMeal(randomMeal(random));
+                case SHOW -> repository.getMeals(CATEGORIES.get(random.nextInt(CATEGORIES.size())));
+                case PLAN -> repository.planMeal(randomPlan(random));
+                case SAVE -> {
+                    if (repository.isPlanExist()) {
+                        repository.getIngredients();
+                    }
+                }
+            }
+        }
+
+        /**
+         * This helper method plans a random week of the last year with the meals of the repository, like the planMeal
+         * method of the Planner does.
+         *
+         * @param random The random generator of the session
+         * @return The plans of the week
+         */
+        private List<Plan> randomPlan(Random random) {
+            Map<String, List<String>> mealNames = new HashMap<>();
+            for (String category : CATEGORIES) {
+                List<String> names = repository.getMeals(category).stream().map(Meal::name).toList();
+                if (names.isEmpty()) {
+                    throw new IllegalStateException("No meals found for " + category);
+                }
+                mealNames.put(category, names);
+            }
+            LocalDate monday = LocalDate.now().minusDays(random.nextInt(365))
+                    .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            List<Plan> plans = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                plans.add(new Plan(monday.plusDays(i),
+                        pick(mealNames.get("breakfast"), random),
+                        pick(mealNames.get("lunch"), random),
+                        pick(mealNames.get("dinner"), random)));
+            }
+            return plans;
+        }
+
+        private String pick(List<String> names, Random random) {
+            return names.get(random.nextInt(names.size()));
+        }
+    }
+
+    /**
+     * This class replaces the standard output while the test is running. It counts the lines starting with "Error:",
+     * which is how the repositories report failed database operations, and drops all output. An error printed by a
+     * session thread is attributed to the operation the session is running.
+     */
+    private class ErrorCountingStream extends PrintStream {
+        private final LongAdder count = new LongAdder();
+
+        ErrorCountingStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public void println(String x) {
+            if (x != null && x.startsWith("Error:")) {
+                count.increment();
+                Session session = currentSession.get();
+                if (session != null) {
+                    session.printedErrors++;
+                }
+            }
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+    }
+}
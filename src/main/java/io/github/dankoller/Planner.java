@@ -3,9 +3,16 @@ package io.github.dankoller;
 import io.github.dankoller.entity.Meal;
 import io.github.dankoller.entity.Plan;
 import io.github.dankoller.repository.Driver;
+import io.github.dankoller.shopping.ShoppingListFormatter;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -15,6 +22,9 @@ public class Planner {
     private final Pattern validMealCategory = Pattern.compile("breakfast|lunch|dinner");
     private final Pattern validMealName = Pattern.compile("[a-zA-Z ]+");
     private final Pattern validIngredients = Pattern.compile("([a-zA-Z]+,? ?)+(?<!,)(?<! )");
+    private final Pattern validReport = Pattern.compile("meals|ingredients|last");
+    private static final int SIMILAR_MEALS_LIMIT = 5;
+    private static final int MOST_COOKED_MEALS_LIMIT = 10;
     private Driver driver;
 
     /**
@@ -33,13 +43,16 @@ public class Planner {
      */
     public void run() {
         while (!isTerminated) {
-            System.out.println("What would you like to do (add, show, plan, save, exit)?");
+            System.out.println("What would you like to do (add, show, plan, save, similar, history, stats, exit)?");
             String command = scanner.nextLine();
             switch (command) {
                 case "add" -> addMeal();
                 case "show" -> showMeal();
                 case "plan" -> planMeal();
                 case "save" -> savePlan();
+                case "similar" -> showSimilarMeals();
+                case "history" -> showHistory();
+                case "stats" -> showStats();
                 case "exit" -> {
                     System.out.println("Bye!");
                     isTerminated = true;
@@ -129,17 +142,19 @@ public class Planner {
     }
 
     /**
-     * This method creates a dialog that helps the user to plan a meal for a week. After the planning is done,
-     * the meal plan is saved to the database. The planning can only be done for a week. The latest planning is
-     * always overwritten.
+     * This method creates a dialog that helps the user to plan a meal for a week. The week starts on the next Monday
+     * (or today, if today is a Monday). After the planning is done, the meal plan is saved to the database. The latest
+     * planning is used for the shopping list, older plans are kept in the plan history.
      */
     private void planMeal() {
-        List<String> weekdays = List.of("Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday");
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
         List<String> mealnames;
         String category;
         Plan plan;
         List<Plan> plans = new ArrayList<>();
-        for (String weekday : weekdays) {
+        for (int i = 0; i < 7; i++) {
+            LocalDate date = monday.plusDays(i);
+            String weekday = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
             System.out.println(weekday);
             category = "breakfast";
             mealnames = driver.getMealNames(category);
@@ -150,7 +165,7 @@ public class Planner {
             category = "dinner";
             mealnames = driver.getMealNames(category);
             String dinner = getMealOption(mealnames, category, weekday);
-            plan = new Plan(weekday, breakfast, lunch, dinner);
+            plan = new Plan(date, breakfast, lunch, dinner);
             plans.add(plan);
             System.out.printf("Yeah! We planned the meals for %s.%n", weekday);
         }
@@ -196,6 +211,132 @@ public class Planner {
         }
     }
 
+    /**
+     * This method creates a dialog that recommends meals with similar ingredients to a meal of the user's choice.
+     * If a meal plan exists, substitutes for the meal that reuse the ingredients of this week are recommended too.
+     * The user is asked again until the name of an existing meal is given.
+     */
+    private void showSimilarMeals() {
+        System.out.println("Input the meal's name:");
+        String mealName = scanner.nextLine();
+        while (!driver.isMealExist(mealName)) {
+            System.out.println("This meal doesn’t exist. Input the name of an existing meal.");
+            mealName = scanner.nextLine();
+        }
+        List<Meal> meals = driver.getSimilarMeals(mealName, SIMILAR_MEALS_LIMIT);
+        if (meals.isEmpty()) {
+            System.out.println("No similar meals found.");
+            return;
+        }
+        System.out.println("Similar meals:");
+        printMealNames(meals);
+        if (driver.isPlanExist()) {
+            System.out.println("Substitutes that reuse this week's ingredients:");
+            printMealNames(driver.getSubstitutes(mealName, SIMILAR_MEALS_LIMIT));
+        }
+    }
+
+    /**
+     * This helper method is used by the showSimilarMeals method to print the names and categories of meals.
+     *
+     * @param meals The meals that should be printed
+     */
+    private void printMealNames(List<Meal> meals) {
+        for (Meal meal : meals) {
+            System.out.printf("%s (%s)%n", meal.name(), meal.category());
+        }
+    }
+
+    /**
+     * This method creates a dialog that prints the plans of a range of dates from the plan history.
+     */
+    private void showHistory() {
+        LocalDate from = getDate("Input the first date (yyyy-mm-dd):");
+        LocalDate to = getDate("Input the last date (yyyy-mm-dd):");
+        List<Plan> plans = driver.getPlans(from, to);
+        if (plans.isEmpty()) {
+            System.out.println("No plans found.");
+            return;
+        }
+        for (Plan p : plans) {
+            System.out.printf("%s %s%nBreakfast: %s%nLunch: %s%nDinner: %s%n%n",
+                    p.date(), p.day(), p.breakfast(), p.lunch(), p.dinner());
+        }
+    }
+
+    /**
+     * This method creates a dialog that prints a report about the plan history. The user can choose between the most
+     * cooked meals and the ingredient consumption of a range of dates, or the days since each meal was cooked last.
+     */
+    private void showStats() {
+        boolean isVerifiedReport = false;
+        String report = "";
+        System.out.println("Which report do you want to print (meals, ingredients, last)?");
+        while (!isVerifiedReport) {
+            report = scanner.nextLine();
+            if (!validReport.matcher(report).matches()) {
+                System.out.println("Wrong report! Choose from: meals, ingredients, last.");
+                continue;
+            }
+            isVerifiedReport = true;
+        }
+        switch (report) {
+            case "meals" -> {
+                LocalDate from = getDate("Input the first date (yyyy-mm-dd):");
+                LocalDate to = getDate("Input the last date (yyyy-mm-dd):");
+                Map<String, Integer> meals = driver.getMostCookedMeals(from, to, MOST_COOKED_MEALS_LIMIT);
+                printCounts(meals, "%s x%d%n");
+            }
+            case "ingredients" -> {
+                LocalDate from = getDate("Input the first date (yyyy-mm-dd):");
+                LocalDate to = getDate("Input the last date (yyyy-mm-dd):");
+                Map<YearMonth, Map<String, Integer>> consumption = driver.getIngredientConsumption(from, to);
+                if (consumption.isEmpty()) {
+                    System.out.println("No plans found.");
+                }
+                for (Map.Entry<YearMonth, Map<String, Integer>> month : consumption.entrySet()) {
+                    System.out.println(month.getKey());
+                    printCounts(month.getValue(), "%s x%d%n");
+                    System.out.println();
+                }
+            }
+            case "last" -> printCounts(driver.getDaysSinceLastCooked(LocalDate.now()), "%s: %d days ago%n");
+        }
+    }
+
+    /**
+     * This helper method is used by the showHistory and showStats methods to ask the user for a date.
+     *
+     * @param message The message that is printed to ask for the date
+     * @return The date that the user has entered
+     */
+    private LocalDate getDate(String message) {
+        System.out.println(message);
+        while (true) {
+            try {
+                return LocalDate.parse(scanner.nextLine().trim());
+            } catch (DateTimeParseException e) {
+                System.out.println("Wrong format. Use yyyy-mm-dd!");
+            }
+        }
+    }
+
+    /**
+     * This helper method is used by the showStats method to print the names and counts of a report.
+     *
+     * @param counts The names and counts that should be printed
+     * @param format The format of a line, e.g. "%s x%d%n"
+     */
+    private void printCounts(Map<String, Integer> counts, String format) {
+        if (counts.isEmpty()) {
+            System.out.println("No plans found.");
+            return;
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            System.out.printf(format, entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * This method saves the ingredients for the week to a file. The file name is asked from the user.
      * The ingredients can only be saved if a meal plan has been created.
@@ -217,7 +358,8 @@ public class Planner {
      * This helper method is used by the savePlan method to remove duplicates from the list of ingredients and to add
      * the number of times an ingredient is needed to the ingredient name.
      * First, the frequency of each ingredient is counted. Then, the ingredients are added to the new list. If the
-     * frequency of an ingredient is greater than 1, the ingredient name is appended with xN, where N is the frequency.
+     * frequency of an ingredient is greater than 1, the ingredient name is appended with xN, where N is the frequency
+     * (see {@link ShoppingListFormatter}).
      *
      * @param list The list of ingredients
      * @return The list of ingredients without duplicates and formatted
@@ -233,11 +375,7 @@ public class Planner {
             }
         }
         for (String ingredient : frequency.keySet()) {
-            if (frequency.get(ingredient) > 1) {
-                newList.add(ingredient + " x" + frequency.get(ingredient));
-            } else {
-                newList.add(ingredient);
-            }
+            newList.add(ShoppingListFormatter.format(ingredient, frequency.get(ingredient)));
         }
         return newList;
     }
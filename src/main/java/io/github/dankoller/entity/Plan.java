@@ -1,12 +1,22 @@
 package io.github.dankoller.entity;
 
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
 /**
  * This record represents a daily meal plan.
  *
- * @param day       The day of the week.
+ * @param date      The calendar date of the plan.
  * @param breakfast The meal name of the breakfast.
  * @param lunch     The meal name of the lunch.
  * @param dinner    The meal name of the dinner.
  */
-public record Plan(String day, String breakfast, String lunch, String dinner) {
+public record Plan(LocalDate date, String breakfast, String lunch, String dinner) {
+    /**
+     * @return The day of the week of the plan (e.g. Monday).
+     */
+    public String day() {
+        return date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
 }
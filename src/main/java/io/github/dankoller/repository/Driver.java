@@ -6,8 +6,18 @@ import io.github.dankoller.entity.Plan;
 
 import java.io.File;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 public class Driver implements MealRepository {
@@ -18,13 +28,54 @@ public class Driver implements MealRepository {
     private static final String SQL_ADD_PLAN = "INSERT INTO plan (day, breakfast, lunch, dinner) VALUES (?, ?, ?, ?)";
     private static final String SQL_CLEAR_PLAN = "DELETE FROM plan";
     private static final String SQL_GET_PLAN = "SELECT * FROM plan";
+    private static final String SQL_GET_MEAL_ID = "SELECT meal_id FROM meals WHERE meal = ?";
     private static final String SQL_GET_MEALS_FROM_PLAN = "SELECT breakfast, lunch, dinner FROM plan";
+    private static final String SQL_GET_MEALS_WITH_INGREDIENTS = "SELECT m.meal_id, m.meal, m.category, " +
+            "i.ingredient FROM meals m LEFT JOIN ingredients i ON i.meal_id = m.meal_id " +
+            "ORDER BY m.meal_id, i.ingredient_id";
+    // meal_count is used to find meal names that are not unique
+    private static final String SQL_GET_INGREDIENTS_FOR_MEALS = "SELECT m.meal, m.meal_count, i.ingredient FROM " +
+            "(SELECT meal, meal_id, COUNT(*) OVER (PARTITION BY meal) AS meal_count FROM meals WHERE meal = ANY(?)) m " +
+            "JOIN ingredients i ON i.meal_id = m.meal_id ORDER BY i.ingredient_id";
+    private static final String SQL_ADD_PLAN_HISTORY =
+            "INSERT INTO plan_history (plan_date, breakfast, lunch, dinner) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT (plan_date) DO UPDATE SET breakfast = EXCLUDED.breakfast, " +
+                    "lunch = EXCLUDED.lunch, dinner = EXCLUDED.dinner";
+    private static final String SQL_GET_PLAN_HISTORY =
+            "SELECT * FROM plan_history WHERE plan_date BETWEEN ? AND ? ORDER BY plan_date";
+    // One row per planned meal, the plan_history primary key is used for the date range
+    private static final String SQL_PLANNED_MEALS = "SELECT h.plan_date, m.meal FROM plan_history h " +
+            "CROSS JOIN LATERAL (VALUES (h.breakfast), (h.lunch), (h.dinner)) AS m(meal)";
+    private static final String SQL_GET_MOST_COOKED_MEALS = "SELECT p.meal, COUNT(*) AS times FROM (" +
+            SQL_PLANNED_MEALS + " WHERE h.plan_date BETWEEN ? AND ?) p " +
+            "GROUP BY p.meal ORDER BY times DESC, p.meal LIMIT ?";
+    // Meal names that are not unique are skipped, like in the shopping lists, and reported by the second query
+    private static final String SQL_GET_INGREDIENT_CONSUMPTION =
+            "SELECT CAST(date_trunc('month', p.plan_date) AS DATE) AS month, i.ingredient, COUNT(*) AS amount FROM (" +
+                    SQL_PLANNED_MEALS + " WHERE h.plan_date BETWEEN ? AND ?) p " +
+                    "JOIN meals ms ON ms.meal = p.meal JOIN ingredients i ON i.meal_id = ms.meal_id " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM meals d WHERE d.meal = ms.meal AND d.meal_id <> ms.meal_id) " +
+                    "GROUP BY month, i.ingredient ORDER BY month, amount DESC, i.ingredient";
+    private static final String SQL_GET_DUPLICATE_PLANNED_MEALS = "SELECT p.meal FROM (" +
+            SQL_PLANNED_MEALS + " WHERE h.plan_date BETWEEN ? AND ?) p JOIN meals ms ON ms.meal = p.meal " +
+            "GROUP BY p.meal HAVING COUNT(DISTINCT ms.meal_id) > 1 ORDER BY p.meal";
+    private static final String SQL_GET_DAYS_SINCE_LAST_COOKED =
+            "SELECT p.meal, CAST(? AS DATE) - MAX(p.plan_date) AS days FROM (" +
+                    SQL_PLANNED_MEALS + " WHERE h.plan_date <= ?) p GROUP BY p.meal ORDER BY days DESC, p.meal";
 
     // Database credentials
     private static String DB_URL;
     private static String USER;
     private static String PASS;
 
+    // Index for similar meal recommendations, built on first use. New meals are added to the database while holding
+    // the read lock, the index is built while holding the write lock, so a meal is never missed or indexed twice.
+    // The index belongs to this Driver instance: it only sees the meals that existed when it was built and the meals
+    // added through this instance. Meals added by other processes or Driver instances are not recommended until the
+    // index is built again (e.g. after a restart).
+    private volatile MealSimilarityIndex similarityIndex;
+    private final ReadWriteLock similarityIndexLock = new ReentrantReadWriteLock();
+
     /**
      * The constructor of the database driver will load the database credentials from the .env file and create the
      * database if it doesn't exist yet.
@@ -35,16 +86,18 @@ public class Driver implements MealRepository {
         loadConfig();
         Connection connection = getConnection();
         connection.setAutoCommit(true);
-        String[] tables = {"meals", "ingredients", "plan"};
+        String[] tables = {"meals", "ingredients", "plan", "plan_history"};
         for (String table : tables) {
             if (!isTableExist(connection, table)) {
                 switch (table) {
                     case "meals" -> createMealTable();
                     case "ingredients" -> createIngredientTable();
                     case "plan" -> createPlanTable();
+                    case "plan_history" -> createPlanHistoryTable();
                 }
             }
         }
+        createIndexes();
     }
 
     /**
@@ -140,6 +193,42 @@ public class Driver implements MealRepository {
         connection.close();
     }
 
+    /**
+     * This helper method is used by the constructor to create the plan history table in the database. The plans are
+     * kept by their calendar date. The primary key is used as index for queries over a range of dates.
+     *
+     * @throws SQLException If the database connection fails
+     */
+    private void createPlanHistoryTable() throws SQLException {
+        Connection connection = getConnection();
+        connection.setAutoCommit(true);
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("CREATE TABLE plan_history (" +
+                "plan_date DATE PRIMARY KEY," +
+                "breakfast VARCHAR(1024) NOT NULL," +
+                "lunch VARCHAR(1024) NOT NULL," +
+                "dinner VARCHAR(1024) NOT NULL" +
+                ")");
+        statement.close();
+        connection.close();
+    }
+
+    /**
+     * This helper method is used by the constructor to create the indexes that are needed to join the plan history
+     * with the meals and ingredients. Existing indexes are kept.
+     *
+     * @throws SQLException If the database connection fails
+     */
+    private void createIndexes() throws SQLException {
+        Connection connection = getConnection();
+        connection.setAutoCommit(true);
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS meals_meal_idx ON meals (meal)");
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS ingredients_meal_id_idx ON ingredients (meal_id)");
+        statement.close();
+        connection.close();
+    }
+
     /**
      * This method is used to add a meal to the database. The meal id is generated by fetching the number of meals
      * in the database and adding 1 to it. The meal id is used to link the ingredients to the meal.
@@ -148,6 +237,7 @@ public class Driver implements MealRepository {
      */
     @Override
     public void addMeal(Meal meal) {
+        similarityIndexLock.readLock().lock();
         try (Connection connection = getConnection()) {
             String mealName = meal.name();
             String SQL_GET_MEAL_ID = "SELECT meal_id FROM meals WHERE meal = '%s'";
@@ -166,8 +256,13 @@ public class Driver implements MealRepository {
                 statement.setInt(3, mealId);
                 statement.executeUpdate();
             }
+            if (similarityIndex != null) {
+                similarityIndex.add(meal);
+            }
         } catch (SQLException e) {
             System.out.println("Error: " + e.getMessage());
+        } finally {
+            similarityIndexLock.readLock().unlock();
         }
     }
 
@@ -229,25 +324,233 @@ public class Driver implements MealRepository {
 
     /**
      * This method is used to save the meal plan to the database. The plan table is overwritten with the new plan.
+     * The plan is also added to the plan history, where a plan for the same date is replaced.
      *
      * @param plans The meal plan to be saved
      */
     @Override
     public void planMeal(List<Plan> plans) {
         try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
             PreparedStatement statement = connection.prepareStatement(SQL_CLEAR_PLAN);
             statement.executeUpdate();
             statement = connection.prepareStatement(SQL_ADD_PLAN);
+            PreparedStatement historyStatement = connection.prepareStatement(SQL_ADD_PLAN_HISTORY);
             for (Plan plan : plans) {
                 statement.setString(1, plan.day());
                 statement.setString(2, plan.breakfast());
                 statement.setString(3, plan.lunch());
                 statement.setString(4, plan.dinner());
                 statement.executeUpdate();
+                historyStatement.setObject(1, plan.date());
+                historyStatement.setString(2, plan.breakfast());
+                historyStatement.setString(3, plan.lunch());
+                historyStatement.setString(4, plan.dinner());
+                historyStatement.addBatch();
+            }
+            historyStatement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This method is used to get the plans of a range of dates from the plan history.
+     *
+     * @param from The first date of the range (inclusive)
+     * @param to   The last date of the range (inclusive)
+     * @return A list of plans sorted by date
+     */
+    @Override
+    public List<Plan> getPlans(LocalDate from, LocalDate to) {
+        List<Plan> plans = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_PLAN_HISTORY);
+            statement.setObject(1, from);
+            statement.setObject(2, to);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                plans.add(new Plan(resultSet.getObject("plan_date", LocalDate.class),
+                        resultSet.getString("breakfast"),
+                        resultSet.getString("lunch"),
+                        resultSet.getString("dinner")));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return plans;
+    }
+
+    /**
+     * This method is used to get the meals that have been planned most often in a range of dates. The meals are
+     * counted by the database, so only the result is transferred.
+     *
+     * @param from  The first date of the range (inclusive)
+     * @param to    The last date of the range (inclusive)
+     * @param limit The maximum number of meals to be returned
+     * @return The meal names and how often they have been planned, the most cooked meal first
+     */
+    @Override
+    public Map<String, Integer> getMostCookedMeals(LocalDate from, LocalDate to, int limit) {
+        Map<String, Integer> meals = new LinkedHashMap<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_MOST_COOKED_MEALS);
+            statement.setObject(1, from);
+            statement.setObject(2, to);
+            statement.setInt(3, limit);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                meals.put(resultSet.getString("meal"), resultSet.getInt("times"));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return meals;
+    }
+
+    /**
+     * This method is used to get the ingredients that have been needed for the plans in a range of dates. The
+     * ingredients are grouped by month. Like the shopping lists, a meal name that isn't unique is an error: the error
+     * is printed and the ingredients of the meal are not counted.
+     *
+     * @param from The first date of the range (inclusive)
+     * @param to   The last date of the range (inclusive)
+     * @return The ingredients and how often they have been needed for every month, sorted by month and amount
+     */
+    @Override
+    public Map<YearMonth, Map<String, Integer>> getIngredientConsumption(LocalDate from, LocalDate to) {
+        Map<YearMonth, Map<String, Integer>> consumption = new LinkedHashMap<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_INGREDIENT_CONSUMPTION);
+            statement.setObject(1, from);
+            statement.setObject(2, to);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                YearMonth month = YearMonth.from(resultSet.getObject("month", LocalDate.class));
+                consumption.computeIfAbsent(month, key -> new LinkedHashMap<>())
+                        .put(resultSet.getString("ingredient"), resultSet.getInt("amount"));
+            }
+            statement = connection.prepareStatement(SQL_GET_DUPLICATE_PLANNED_MEALS);
+            statement.setObject(1, from);
+            statement.setObject(2, to);
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                System.out.println("Error: The meal name '" + resultSet.getString("meal") + "' is not unique");
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return consumption;
+    }
+
+    /**
+     * This method is used to get the number of days since each meal has been planned the last time. Plans after the
+     * given date are ignored.
+     *
+     * @param today The date to count the days from
+     * @return The meal names and the days since they have been planned, the longest time first
+     */
+    @Override
+    public Map<String, Integer> getDaysSinceLastCooked(LocalDate today) {
+        Map<String, Integer> meals = new LinkedHashMap<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_DAYS_SINCE_LAST_COOKED);
+            statement.setObject(1, today);
+            statement.setObject(2, today);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                meals.put(resultSet.getString("meal"), resultSet.getInt("days"));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return meals;
+    }
+
+    /**
+     * This method is used to get the meals with the most similar ingredients to a meal.
+     *
+     * @param mealName The name of the meal
+     * @param limit    The maximum number of meals to be returned
+     * @return A list of similar meals, the most similar meal first
+     */
+    @Override
+    public List<Meal> getSimilarMeals(String mealName, int limit) {
+        return getSimilarityIndex().similarTo(mealName, limit);
+    }
+
+    /**
+     * This method is used to get substitutes for a meal. The substitutes are similar to the meal and reuse as many
+     * ingredients of the current plan as possible.
+     *
+     * @param mealName The name of the meal that should be replaced
+     * @param limit    The maximum number of meals to be returned
+     * @return A list of substitutes, the best substitute first
+     */
+    @Override
+    public List<Meal> getSubstitutes(String mealName, int limit) {
+        return getSimilarityIndex().substitutesFor(mealName, getIngredients(), limit);
+    }
+
+    /**
+     * This helper method is used to get the similarity index. The index is built from all the meals in the database
+     * when it's used for the first time. After that, it's kept up to date by the addMeal method.
+     *
+     * @return The similarity index
+     */
+    private MealSimilarityIndex getSimilarityIndex() {
+        if (similarityIndex == null) {
+            similarityIndexLock.writeLock().lock();
+            try {
+                if (similarityIndex == null) {
+                    MealSimilarityIndex index = new MealSimilarityIndex();
+                    index.addAll(getMealsWithIngredients());
+                    similarityIndex = index;
+                }
+            } finally {
+                similarityIndexLock.writeLock().unlock();
+            }
+        }
+        return similarityIndex;
+    }
+
+    /**
+     * This helper method is used by the getSimilarityIndex method to load all the meals and their ingredients with a
+     * single query. The rows are sorted by the meal id, so the ingredients of a meal are next to each other.
+     *
+     * @return A list of all meals
+     */
+    private List<Meal> getMealsWithIngredients() {
+        List<Meal> meals = new ArrayList<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_MEALS_WITH_INGREDIENTS);
+            ResultSet resultSet = statement.executeQuery();
+            int currentMealId = 0;
+            String mealName = null;
+            String mealCategory = null;
+            List<String> ingredients = new ArrayList<>();
+            while (resultSet.next()) {
+                int mealId = resultSet.getInt("meal_id");
+                if (mealName != null && mealId != currentMealId) {
+                    meals.add(new Meal(mealName, mealCategory, ingredients.toArray(new String[0])));
+                    ingredients.clear();
+                }
+                currentMealId = mealId;
+                mealName = resultSet.getString("meal");
+                mealCategory = resultSet.getString("category");
+                String ingredient = resultSet.getString("ingredient");
+                if (ingredient != null) {
+                    ingredients.add(ingredient);
+                }
+            }
+            if (mealName != null) {
+                meals.add(new Meal(mealName, mealCategory, ingredients.toArray(new String[0])));
             }
         } catch (SQLException e) {
             System.out.println("Error: " + e.getMessage());
         }
+        return meals;
     }
 
     /**
@@ -260,11 +563,30 @@ public class Driver implements MealRepository {
         return getMeals(category).stream().map(Meal::name).sorted().collect(Collectors.toList());
     }
 
+    /**
+     * This method is used to check if a meal with the given name exists in the database.
+     *
+     * @param mealName The name of the meal
+     * @return True if the meal exists, false otherwise
+     */
+    public boolean isMealExist(String mealName) {
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_MEAL_ID);
+            statement.setString(1, mealName);
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next();
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return false;
+    }
+
     /**
      * This method is used by the savePlan method to check if a plan already exists in the database.
      *
      * @return True if a plan exists, false otherwise
      */
+    @Override
     public boolean isPlanExist() {
         try (Connection connection = getConnection()) {
             PreparedStatement statement = connection.prepareStatement(SQL_GET_PLAN);
@@ -282,6 +604,7 @@ public class Driver implements MealRepository {
      *
      * @return A list of ingredients
      */
+    @Override
     public List<String> getIngredients() {
         List<String> ingredients = new ArrayList<>();
         List<String> meals = new ArrayList<>();
@@ -307,4 +630,37 @@ public class Driver implements MealRepository {
         }
         return ingredients;
     }
+
+    /**
+     * This method is used to get the ingredients of many meals with a single query, e.g. for the shopping lists of
+     * many plans. Like the getIngredients method for a single plan, a meal name that isn't unique is an error: the
+     * error is printed and the meal is not part of the result.
+     *
+     * @param mealNames The names of the meals
+     * @return The ingredients of every meal by the meal name. Unknown meals are not part of the result.
+     */
+    @Override
+    public Map<String, List<String>> getIngredients(Collection<String> mealNames) {
+        Map<String, List<String>> ingredients = new HashMap<>();
+        try (Connection connection = getConnection()) {
+            PreparedStatement statement = connection.prepareStatement(SQL_GET_INGREDIENTS_FOR_MEALS);
+            statement.setArray(1, connection.createArrayOf("varchar", mealNames.toArray()));
+            ResultSet resultSet = statement.executeQuery();
+            Set<String> duplicates = new TreeSet<>();
+            while (resultSet.next()) {
+                if (resultSet.getInt("meal_count") > 1) {
+                    duplicates.add(resultSet.getString("meal"));
+                    continue;
+                }
+                ingredients.computeIfAbsent(resultSet.getString("meal"), key -> new ArrayList<>())
+                        .add(resultSet.getString("ingredient"));
+            }
+            for (String duplicate : duplicates) {
+                System.out.println("Error: The meal name '" + duplicate + "' is not unique");
+            }
+        } catch (SQLException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+        return ingredients;
+    }
 }
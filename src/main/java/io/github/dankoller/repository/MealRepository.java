@@ -3,7 +3,11 @@ package io.github.dankoller.repository;
 import io.github.dankoller.entity.Meal;
 import io.github.dankoller.entity.Plan;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface represents a repository for meals and meal plans.
@@ -14,4 +18,22 @@ public interface MealRepository {
     List<Meal> getMeals(String category);
 
     void planMeal(List<Plan> plans);
+
+    boolean isPlanExist();
+
+    List<String> getIngredients();
+
+    Map<String, List<String>> getIngredients(Collection<String> mealNames);
+
+    List<Meal> getSimilarMeals(String mealName, int limit);
+
+    List<Meal> getSubstitutes(String mealName, int limit);
+
+    List<Plan> getPlans(LocalDate from, LocalDate to);
+
+    Map<String, Integer> getMostCookedMeals(LocalDate from, LocalDate to, int limit);
+
+    Map<YearMonth, Map<String, Integer>> getIngredientConsumption(LocalDate from, LocalDate to);
+
+    Map<String, Integer> getDaysSinceLastCooked(LocalDate today);
 }
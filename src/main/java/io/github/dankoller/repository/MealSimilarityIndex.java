@@ -0,0 +1,361 @@
+package io.github.dankoller.repository;
+
+import io.github.dankoller.entity.Meal;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is an in-memory recommendation index that finds meals with similar ingredient sets. Every meal gets a
+ * MinHash signature of its ingredients and the signature is split into bands (locality sensitive hashing). Meals that
+ * share at least one band end up in the same bucket and become candidates, so a lookup only has to compare against a
+ * small part of the catalog instead of computing the Jaccard similarity for every pair of meals.
+ * <p>
+ * With 16 bands of 4 rows, two meals with a Jaccard similarity of 0.5 are found with a probability of ~64%, meals
+ * with a similarity of 0.7 with a probability of ~99%. The candidates are ranked by their exact Jaccard similarity.
+ */
+public class MealSimilarityIndex {
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int MAX_CANDIDATES = 10_000;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Meal> meals = new ArrayList<>();
+    private final List<Set<String>> ingredientSets = new ArrayList<>();
+    private final Map<String, Integer> mealIds = new HashMap<>();
+    private final Band[] bands = new Band[BANDS];
+
+    public MealSimilarityIndex() {
+        for (int i = 0; i < BANDS; i++) {
+            bands[i] = new Band();
+        }
+    }
+
+    /**
+     * This method is used to add a meal to the index. The meal is bucketed right away, so it can be found by the next
+     * lookup. If a meal with the same name already exists, it's replaced by the new meal: the old meal is removed from
+     * its buckets and the new meal takes over its id, so adding the same name again doesn't grow the index.
+     *
+     * @param meal The meal to be added
+     */
+    public void add(Meal meal) {
+        Set<String> ingredients = normalize(Arrays.asList(meal.ingredients()));
+        long[] bandKeys = bandKeys(ingredients);
+        lock.writeLock().lock();
+        try {
+            Integer mealId = mealIds.get(meal.name());
+            if (mealId == null) {
+                mealId = meals.size();
+                mealIds.put(meal.name(), mealId);
+                meals.add(meal);
+                ingredientSets.add(ingredients);
+            } else {
+                long[] oldBandKeys = bandKeys(ingredientSets.get(mealId));
+                if (oldBandKeys != null) {
+                    for (int i = 0; i < BANDS; i++) {
+                        bands[i].remove(oldBandKeys[i], mealId);
+                    }
+                }
+                meals.set(mealId, meal);
+                ingredientSets.set(mealId, ingredients);
+            }
+            if (bandKeys != null) {
+                for (int i = 0; i < BANDS; i++) {
+                    bands[i].add(bandKeys[i], mealId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used to add several meals to the index at once, e.g. when the index is built from the database.
+     *
+     * @param meals The meals to be added
+     */
+    public void addAll(Collection<Meal> meals) {
+        for (Meal meal : meals) {
+            add(meal);
+        }
+    }
+
+    /**
+     * @return The number of meals in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return meals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used to find the meals that are most similar to a meal in the index. The meal itself is not part
+     * of the result.
+     *
+     * @param mealName The name of the meal
+     * @param limit    The maximum number of meals to be returned
+     * @return A list of similar meals, the most similar meal first. The list is empty if the meal is unknown.
+     */
+    public List<Meal> similarTo(String mealName, int limit) {
+        return substitutesFor(mealName, Set.of(), limit);
+    }
+
+    /**
+     * This method is used to find the meals whose ingredients are most similar to the given ingredients.
+     *
+     * @param ingredients The ingredients to compare with
+     * @param limit       The maximum number of meals to be returned
+     * @return A list of similar meals, the most similar meal first
+     */
+    public List<Meal> similarTo(Collection<String> ingredients, int limit) {
+        Set<String> query = normalize(ingredients);
+        lock.readLock().lock();
+        try {
+            return rank(query, -1, Set.of(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method is used to find a substitute for a meal that reuses ingredients which are already needed. The
+     * candidates are the meals similar to the given meal. They are ranked by how many of their ingredients are already
+     * on the shopping list first and by their similarity second.
+     *
+     * @param mealName    The name of the meal that should be replaced
+     * @param ingredients The ingredients that are already needed (e.g. for this week's plan)
+     * @param limit       The maximum number of meals to be returned
+     * @return A list of substitutes, the best substitute first. The list is empty if the meal is unknown.
+     */
+    public List<Meal> substitutesFor(String mealName, Collection<String> ingredients, int limit) {
+        Set<String> reused = normalize(ingredients);
+        lock.readLock().lock();
+        try {
+            Integer mealId = mealIds.get(mealName);
+            if (mealId == null) {
+                return List.of();
+            }
+            return rank(ingredientSets.get(mealId), mealId, reused, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This helper method collects the candidates from the buckets the query falls into and ranks them. The caller has
+     * to hold the read lock.
+     *
+     * @param query    The normalized ingredients to compare with
+     * @param excluded The id of a meal that should not be part of the result or -1
+     * @param reused   The normalized ingredients that should be reused, may be empty
+     * @param limit    The maximum number of meals to be returned
+     * @return A list of ranked meals
+     */
+    private List<Meal> rank(Set<String> query, int excluded, Set<String> reused, int limit) {
+        long[] bandKeys = bandKeys(query);
+        if (bandKeys == null || limit <= 0) {
+            return List.of();
+        }
+        Set<Integer> candidates = new HashSet<>();
+        for (int i = 0; i < BANDS && candidates.size() < MAX_CANDIDATES; i++) {
+            bands[i].collect(bandKeys[i], candidates);
+        }
+        candidates.remove(excluded);
+        List<Candidate> ranked = new ArrayList<>(candidates.size());
+        for (int mealId : candidates) {
+            Set<String> ingredients = ingredientSets.get(mealId);
+            ranked.add(new Candidate(mealId, overlap(ingredients, reused), jaccard(query, ingredients)));
+        }
+        ranked.sort(Comparator.comparingInt(Candidate::reused).reversed()
+                .thenComparing(Comparator.comparingDouble(Candidate::similarity).reversed())
+                .thenComparingInt(Candidate::mealId));
+        List<Meal> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(meals.get(ranked.get(i).mealId()));
+        }
+        return result;
+    }
+
+    /**
+     * This helper method is used to make the ingredients comparable, e.g. "Tomato " and "tomato" are the same.
+     *
+     * @param ingredients The ingredients to be normalized
+     * @return A set of lower case ingredients without surrounding white spaces
+     */
+    private static Set<String> normalize(Collection<String> ingredients) {
+        Set<String> normalized = new HashSet<>();
+        for (String ingredient : ingredients) {
+            String trimmed = ingredient.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                normalized.add(trimmed);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * This helper method calculates the MinHash signature of the ingredients and folds every band of the signature
+     * into a single bucket key. The hash functions are derived from two base hashes (h1 + i * h2).
+     *
+     * @param ingredients The normalized ingredients
+     * @return The bucket key for every band or null if there are no ingredients
+     */
+    private static long[] bandKeys(Set<String> ingredients) {
+        if (ingredients.isEmpty()) {
+            return null;
+        }
+        long[] signature = new long[BANDS * ROWS];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String ingredient : ingredients) {
+            long h1 = mix(ingredient.hashCode());
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < signature.length; i++) {
+                long hash = mix(h1 + i * h2);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS; row++) {
+                key = mix(key * 31 + signature[band * ROWS + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * This helper method spreads the bits of a value (finalizer of the 64-bit MurmurHash3).
+     *
+     * @param value The value to be mixed
+     * @return The mixed value
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        int intersection = overlap(a, b);
+        int union = a.size() + b.size() - intersection;
+        return union == 0 ? 0 : (double) intersection / union;
+    }
+
+    private static int overlap(Set<String> a, Set<String> b) {
+        if (a.size() > b.size()) {
+            return overlap(b, a);
+        }
+        int count = 0;
+        for (String ingredient : a) {
+            if (b.contains(ingredient)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private record Candidate(int mealId, int reused, double similarity) {
+    }
+
+    /**
+     * This class holds the buckets of one band. The buckets are stored in an open addressing hash table (bucket key to
+     * the newest meal id) and the meals of a bucket are chained by an array indexed by the meal id. This keeps the
+     * index compact, because no objects are created per meal.
+     */
+    private static class Band {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] heads = new int[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int[] next = new int[INITIAL_CAPACITY];
+        private int buckets = 0;
+
+        void add(long key, int mealId) {
+            if (mealId >= next.length) {
+                next = Arrays.copyOf(next, Math.max(next.length * 2, mealId + 1));
+            }
+            if ((buckets + 1) * 4 > keys.length * 3) {
+                resize();
+            }
+            int slot = slot(key);
+            if (used[slot]) {
+                next[mealId] = heads[slot];
+            } else {
+                used[slot] = true;
+                keys[slot] = key;
+                next[mealId] = -1;
+                buckets++;
+            }
+            heads[slot] = mealId;
+        }
+
+        /**
+         * Removes a meal from the bucket of the key. The bucket is kept even if it's empty, because removing a key
+         * from an open addressing hash table would break the probe sequence of other keys.
+         */
+        void remove(long key, int mealId) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                return;
+            }
+            if (heads[slot] == mealId) {
+                heads[slot] = next[mealId];
+                return;
+            }
+            for (int previous = heads[slot]; previous != -1; previous = next[previous]) {
+                if (next[previous] == mealId) {
+                    next[previous] = next[mealId];
+                    return;
+                }
+            }
+        }
+
+        void collect(long key, Set<Integer> candidates) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                return;
+            }
+            for (int mealId = heads[slot]; mealId != -1 && candidates.size() < MAX_CANDIDATES; mealId = next[mealId]) {
+                candidates.add(mealId);
+            }
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    heads[slot] = oldHeads[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.dankoller.shopping;
+
+import io.github.dankoller.entity.Plan;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * This class creates the shopping lists for many meal plans at once, e.g. for a delivery batch. The ingredients of all
+ * the planned meals are fetched with a single query. Every ingredient gets a number, so the ingredients can be counted
+ * in plain int arrays. The plans are split between the available cores and every task counts into its own arrays and
+ * collects the shopping lists of its own plans. The arrays and lists of the tasks are combined at the end.
+ */
+public class ShoppingListConsolidator {
+    private final Function<Collection<String>, Map<String, List<String>>> ingredientSource;
+
+    /**
+     * @param ingredientSource The source of the ingredients of many meals by the meal name, e.g.
+     *                         repository::getIngredients of a MealRepository
+     */
+    public ShoppingListConsolidator(Function<Collection<String>, Map<String, List<String>>> ingredientSource) {
+        this.ingredientSource = ingredientSource;
+    }
+
+    /**
+     * This method is used to create the shopping list of every plan and the consolidated shopping list of all plans.
+     * The ingredients are formatted like the shopping list of the save command, see {@link ShoppingListFormatter}.
+     *
+     * @param plans The meal plans, every plan is a list of daily plans
+     * @return The shopping lists in the same order as the plans and the consolidated shopping list
+     */
+    public ShoppingLists consolidate(List<List<Plan>> plans) {
+        Set<String> mealNames = new HashSet<>();
+        for (List<Plan> plan : plans) {
+            for (Plan p : plan) {
+                mealNames.add(p.breakfast());
+                mealNames.add(p.lunch());
+                mealNames.add(p.dinner());
+            }
+        }
+        Map<String, List<String>> ingredientsByMeal = ingredientSource.apply(mealNames);
+
+        // Number the ingredients and translate every meal to the numbers of its ingredients
+        Map<String, Integer> ingredientIds = new HashMap<>();
+        List<String> ingredientNames = new ArrayList<>();
+        Map<String, int[]> mealIngredients = new HashMap<>();
+        for (Map.Entry<String, List<String>> meal : ingredientsByMeal.entrySet()) {
+            int[] ids = new int[meal.getValue().size()];
+            for (int i = 0; i < ids.length; i++) {
+                String ingredient = meal.getValue().get(i);
+                ids[i] = ingredientIds.computeIfAbsent(ingredient, key -> {
+                    ingredientNames.add(key);
+                    return ingredientNames.size() - 1;
+                });
+            }
+            mealIngredients.put(meal.getKey(), ids);
+        }
+
+        // The stream is ordered, so the combined shopping lists are in the same order as the plans
+        Counter counter = IntStream.range(0, plans.size()).parallel().collect(
+                () -> new Counter(ingredientNames.size()),
+                (c, i) -> c.count(plans.get(i), mealIngredients, ingredientNames),
+                Counter::add);
+        return new ShoppingLists(counter.shoppingLists, format(counter.total, ingredientNames));
+    }
+
+    /**
+     * This helper method is used to turn the counts into a shopping list. The ingredients keep the order in which
+     * they have been numbered.
+     *
+     * @param counts          The number of times every ingredient is needed
+     * @param ingredientNames The names of the ingredients by their number
+     * @return The shopping list
+     */
+    private static List<String> format(int[] counts, List<String> ingredientNames) {
+        List<String> list = new ArrayList<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                list.add(ShoppingListFormatter.format(ingredientNames.get(id), counts[id]));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * This class holds the counts of one task. The counts of a single plan are kept in a reusable array together with
+     * the numbers of the ingredients the plan needs, so only those have to be visited. The counts of all the plans of
+     * the task are added to the total array and the shopping lists of the plans are collected in plan order.
+     */
+    private static class Counter {
+        private final List<List<String>> shoppingLists = new ArrayList<>();
+        private final int[] total;
+        private final int[] plan;
+        private final int[] needed;
+        private int neededCount = 0;
+
+        Counter(int ingredients) {
+            total = new int[ingredients];
+            plan = new int[ingredients];
+            needed = new int[ingredients];
+        }
+
+        void count(List<Plan> days, Map<String, int[]> mealIngredients, List<String> ingredientNames) {
+            for (Plan p : days) {
+                add(mealIngredients.get(p.breakfast()));
+                add(mealIngredients.get(p.lunch()));
+                add(mealIngredients.get(p.dinner()));
+            }
+            Arrays.sort(needed, 0, neededCount);
+            List<String> list = new ArrayList<>(neededCount);
+            for (int i = 0; i < neededCount; i++) {
+                int id = needed[i];
+                list.add(ShoppingListFormatter.format(ingredientNames.get(id), plan[id]));
+                total[id] += plan[id];
+                plan[id] = 0;
+            }
+            neededCount = 0;
+            shoppingLists.add(list);
+        }
+
+        void add(Counter other) {
+            for (int id = 0; id < total.length; id++) {
+                total[id] += other.total[id];
+            }
+            shoppingLists.addAll(other.shoppingLists);
+        }
+
+        private void add(int[] ingredients) {
+            if (ingredients == null) {
+                return;
+            }
+            for (int id : ingredients) {
+                if (plan[id]++ == 0) {
+                    needed[neededCount++] = id;
+                }
+            }
+        }
+    }
+}
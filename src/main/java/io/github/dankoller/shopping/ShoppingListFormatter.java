@@ -0,0 +1,23 @@
+package io.github.dankoller.shopping;
+
+/**
+ * This class formats the entries of a shopping list. It's used by the save command and the shopping lists of many
+ * plans, so every shopping list looks the same.
+ */
+public final class ShoppingListFormatter {
+
+    private ShoppingListFormatter() {
+    }
+
+    /**
+     * This method is used to format an ingredient of a shopping list. If the ingredient is needed more than once, the
+     * ingredient name is appended with xN, where N is the frequency.
+     *
+     * @param ingredient The name of the ingredient
+     * @param count      The number of times the ingredient is needed
+     * @return The entry of the shopping list
+     */
+    public static String format(String ingredient, int count) {
+        return count > 1 ? ingredient + " x" + count : ingredient;
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.dankoller.shopping;
+
+import java.util.List;
+
+/**
+ * This record represents the shopping lists of many meal plans.
+ *
+ * @param plans The shopping list of every plan, in the same order as the plans.
+ * @param total The consolidated shopping list of all plans.
+ */
+public record ShoppingLists(List<List<String>> plans, List<String> total) {
+}
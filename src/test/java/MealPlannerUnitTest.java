@@ -1,10 +1,15 @@
 import io.github.cdimascio.dotenv.Dotenv;
 import io.github.dankoller.Main;
+import io.github.dankoller.repository.Driver;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.*;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -30,9 +35,9 @@ public class MealPlannerUnitTest {
         System.setIn(stdin);
         System.setOut(stdout);
         String output = byteArrayOutputStream.toString();
-        output = output.substring(0, output.length() - 57); // Remove last line from output
+        output = output.substring(0, output.length() - 82); // Remove last line from output
         String expected = """
-                What would you like to do (add, show, plan, save, exit)?
+                What would you like to do (add, show, plan, save, similar, history, stats, exit)?
                 Which meal do you want to add (breakfast, lunch, dinner)?
                 Input the meal's name:
                 Input the ingredients:
@@ -58,27 +63,202 @@ public class MealPlannerUnitTest {
         System.setIn(stdin);
         System.setOut(stdout);
         String output = byteArrayOutputStream.toString();
-        output = output.substring(0, output.length() - 57);
+        output = output.substring(0, output.length() - 82);
         String expected = """
-                What would you like to do (add, show, plan, save, exit)?
+                What would you like to do (add, show, plan, save, similar, history, stats, exit)?
                 Which category do you want to print (breakfast, lunch, dinner)?
                 Category: breakfast
                 """;
         assertTrue(output.contains(expected));
     }
 
+    // Test for showing the meals that are similar to a meal, a misspelled name is asked again
+    @Test
+    public void testSimilarMeal() {
+        String[] commandsForSimilarMeal = {
+                "add",
+                "breakfast",
+                "testmeal",
+                "bits, bytes, arrays",
+                "add",
+                "lunch",
+                "testmeal two",
+                "bits, bytes, arrays",
+                "similar",
+                "testmeal three",
+                "testmeal"
+        };
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream(String.join("\n", commandsForSimilarMeal).getBytes()));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(byteArrayOutputStream);
+        PrintStream stdout = System.out;
+        System.setOut(ps);
+        executeMain();
+        System.setIn(stdin);
+        System.setOut(stdout);
+        String output = byteArrayOutputStream.toString();
+        String expected = """
+                What would you like to do (add, show, plan, save, similar, history, stats, exit)?
+                Input the meal's name:
+                This meal doesn’t exist. Input the name of an existing meal.
+                Similar meals:
+                testmeal two (lunch)
+                """;
+        assertTrue(output.contains(expected));
+    }
+
+    // Test for printing a week from the plan history and the most cooked meals and ingredient consumption reports.
+    // The plans are added to the history directly, so the current plan and this week's history are not touched.
+    @Test
+    public void testPlanHistoryAndMostCookedMeals() throws SQLException {
+        LocalDate monday = LocalDate.of(1900, 1, 1);
+        LocalDate sunday = monday.plusDays(6);
+        new Driver(); // Creates the plan history table if it doesn't exist yet
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(true);
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO plan_history (plan_date, breakfast, lunch, dinner) VALUES (?, ?, ?, ?)");
+            for (LocalDate date = monday; !date.isAfter(sunday); date = date.plusDays(1)) {
+                statement.setObject(1, date);
+                statement.setString(2, "testmeal a");
+                statement.setString(3, "testmeal b");
+                statement.setString(4, "testmeal c");
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        String[] commandsForHistoryAndStats = {
+                "add", "breakfast", "testmeal a", "bits, bytes",
+                "add", "lunch", "testmeal b", "bytes, arrays",
+                "add", "dinner", "testmeal c", "arrays",
+                "add", "lunch", "testmeal c", "bits",
+                "history", monday.toString(), sunday.toString(),
+                "stats", "meals", monday.toString(), sunday.toString(),
+                "stats", "ingredients", monday.toString(), sunday.toString()
+        };
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream(String.join("\n", commandsForHistoryAndStats).getBytes()));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(byteArrayOutputStream);
+        PrintStream stdout = System.out;
+        System.setOut(ps);
+        executeMain();
+        System.setIn(stdin);
+        System.setOut(stdout);
+        String output = byteArrayOutputStream.toString();
+        String expectedHistory = """
+                Input the last date (yyyy-mm-dd):
+                1900-01-01 Monday
+                Breakfast: testmeal a
+                Lunch: testmeal b
+                Dinner: testmeal c
+                """;
+        String expectedMostCookedMeals = """
+                Which report do you want to print (meals, ingredients, last)?
+                Input the first date (yyyy-mm-dd):
+                Input the last date (yyyy-mm-dd):
+                testmeal a x7
+                testmeal b x7
+                testmeal c x7
+                """;
+        // testmeal c isn't unique, so its ingredients are not counted
+        String expectedConsumption = """
+                Input the last date (yyyy-mm-dd):
+                Error: The meal name 'testmeal c' is not unique
+                1900-01
+                bytes x14
+                arrays x7
+                bits x7
+                """;
+        assertTrue(output.contains(expectedHistory));
+        assertTrue(output.contains(String.format("%s Sunday%n", sunday)));
+        assertTrue(output.contains(expectedMostCookedMeals));
+        assertTrue(output.contains(expectedConsumption));
+    }
+
+    // Test for the report of the days since the meals have been cooked last
+    @Test
+    public void testDaysSinceLastCooked() throws SQLException {
+        LocalDate date = LocalDate.of(1900, 1, 1);
+        new Driver(); // Creates the plan history table if it doesn't exist yet
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(true);
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO plan_history (plan_date, breakfast, lunch, dinner) VALUES (?, ?, ?, ?)");
+            statement.setObject(1, date);
+            statement.setString(2, "testmeal a");
+            statement.setString(3, "testmeal b");
+            statement.setString(4, "testmeal c");
+            statement.executeUpdate();
+        }
+        String[] commandsForDaysSinceLastCooked = {
+                "stats",
+                "last"
+        };
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream(String.join("\n", commandsForDaysSinceLastCooked).getBytes()));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(byteArrayOutputStream);
+        PrintStream stdout = System.out;
+        System.setOut(ps);
+        executeMain();
+        System.setIn(stdin);
+        System.setOut(stdout);
+        String output = byteArrayOutputStream.toString();
+        long days = ChronoUnit.DAYS.between(date, LocalDate.now());
+        assertTrue(output.contains(String.format("testmeal a: %d days ago%n", days)));
+        assertTrue(output.contains(String.format("testmeal c: %d days ago%n", days)));
+    }
+
+    // Test that the ingredients of a meal name that isn't unique are not merged for the shopping lists
+    @Test
+    public void testIngredientsOfDuplicateMealName() throws SQLException {
+        String[] commandsForAddingDuplicateMeal = {
+                "add",
+                "breakfast",
+                "testmeal",
+                "bits, bytes",
+                "add",
+                "lunch",
+                "testmeal",
+                "arrays"
+        };
+        InputStream stdin = System.in;
+        System.setIn(new ByteArrayInputStream(String.join("\n", commandsForAddingDuplicateMeal).getBytes()));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(byteArrayOutputStream);
+        PrintStream stdout = System.out;
+        System.setOut(ps);
+        executeMain();
+        Map<String, List<String>> ingredients = new Driver().getIngredients(List.of("testmeal"));
+        System.setIn(stdin);
+        System.setOut(stdout);
+        String output = byteArrayOutputStream.toString();
+        assertTrue(ingredients.isEmpty());
+        assertTrue(output.contains("Error: The meal name 'testmeal' is not unique"));
+    }
+
     // Clean the database after each test
     @AfterEach
     public void cleanDatabase() {
         String SQL_CLEAN_MEALS_TABLE = "DELETE FROM meals WHERE meal LIKE '%testmeal%'";
         String SQL_CLEAN_INGREDIENTS_TABLE = "DELETE FROM ingredients WHERE ingredient " +
                 "LIKE '%bits%' OR ingredient LIKE '%bytes%' OR ingredient LIKE '%arrays%'";
+        String SQL_CLEAN_PLAN_TABLE = "DELETE FROM plan WHERE breakfast " +
+                "LIKE '%testmeal%' OR lunch LIKE '%testmeal%' OR dinner LIKE '%testmeal%'";
+        String SQL_CLEAN_PLAN_HISTORY_TABLE = "DELETE FROM plan_history WHERE breakfast " +
+                "LIKE '%testmeal%' OR lunch LIKE '%testmeal%' OR dinner LIKE '%testmeal%'";
         try (Connection connection = getConnection()) {
             connection.setAutoCommit(true);
             PreparedStatement statement = connection.prepareStatement(SQL_CLEAN_MEALS_TABLE);
             statement.executeUpdate();
             statement = connection.prepareStatement(SQL_CLEAN_INGREDIENTS_TABLE);
             statement.executeUpdate();
+            statement = connection.prepareStatement(SQL_CLEAN_PLAN_TABLE);
+            statement.executeUpdate();
+            statement = connection.prepareStatement(SQL_CLEAN_PLAN_HISTORY_TABLE);
+            statement.executeUpdate();
             statement = connection.prepareStatement("SELECT * FROM meals WHERE meal LIKE '%testmeal%'");
             ResultSet resultSet = statement.executeQuery();
             assertEquals(0, resultSet.getRow());
@@ -86,6 +266,10 @@ public class MealPlannerUnitTest {
                     "LIKE '%bits%' OR ingredient LIKE '%bytes%' OR ingredient LIKE '%arrays%'");
             resultSet = statement.executeQuery();
             assertEquals(0, resultSet.getRow());
+            statement = connection.prepareStatement("SELECT * FROM plan_history WHERE breakfast " +
+                    "LIKE '%testmeal%' OR lunch LIKE '%testmeal%' OR dinner LIKE '%testmeal%'");
+            resultSet = statement.executeQuery();
+            assertEquals(0, resultSet.getRow());
         } catch (SQLException e) {
             System.err.println("Could not clean the database, please do it manually. Error: " + e.getMessage());
         }
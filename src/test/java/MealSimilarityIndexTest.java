@@ -0,0 +1,93 @@
+import io.github.dankoller.entity.Meal;
+import io.github.dankoller.repository.MealSimilarityIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MealSimilarityIndexTest {
+    private MealSimilarityIndex index;
+
+    @BeforeEach
+    public void createIndex() {
+        index = new MealSimilarityIndex();
+        index.add(meal("salad", "tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "oil"));
+        index.add(meal("greek salad", "tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "feta"));
+        index.add(meal("tomato salad", "tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "oil",
+                "basil"));
+        index.add(meal("pancakes", "flour", "milk", "eggs", "sugar"));
+    }
+
+    // Test that the meal itself is not recommended, even if its name has been indexed twice
+    @Test
+    public void testQueryMealIsExcluded() {
+        assertEquals(List.of("tomato salad", "greek salad"), names(index.similarTo("salad", 5)));
+        index.add(meal("salad", "tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "oil"));
+        assertEquals(List.of("tomato salad", "greek salad"), names(index.similarTo("salad", 5)));
+        assertEquals(List.of("salad", "tomato salad"), names(index.similarTo("greek salad", 5)));
+        assertEquals(4, index.size());
+    }
+
+    // Test that adding a meal again replaces the old meal instead of growing the index
+    @Test
+    public void testAddingMealAgainReplacesIt() {
+        for (int i = 0; i < 100; i++) {
+            index.add(meal("salad", "tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "oil"));
+        }
+        assertEquals(4, index.size());
+        assertEquals(List.of("salad", "tomato salad"), names(index.similarTo("greek salad", 5)));
+        index.add(meal("salad", "flour", "milk", "eggs", "sugar"));
+        assertEquals(4, index.size());
+        assertEquals(List.of("tomato salad"), names(index.similarTo("greek salad", 5)));
+        assertEquals(List.of("salad"), names(index.similarTo("pancakes", 5)));
+    }
+
+    // Test that the meals are ranked by their Jaccard similarity
+    @Test
+    public void testResultsAreRankedBySimilarity() {
+        // tomato salad shares 8 of 9 ingredients with salad, greek salad 7 of 9
+        assertEquals(List.of("tomato salad", "greek salad"), names(index.similarTo("salad", 5)));
+        assertEquals(List.of("tomato salad"), names(index.similarTo("salad", 1)));
+        assertEquals(List.of("salad", "tomato salad", "greek salad"), names(index.similarTo(
+                List.of("Tomato", "lettuce", "onion", "cheese", "cucumber", "olives", "pepper", "oil "), 5)));
+    }
+
+    // Test that substitutes which reuse the ingredients of the plan are ranked first
+    @Test
+    public void testSubstitutesReusingIngredientsRankFirst() {
+        assertEquals(List.of("greek salad", "tomato salad"),
+                names(index.substitutesFor("salad", List.of("feta", "bread"), 5)));
+        assertEquals(List.of("tomato salad", "greek salad"),
+                names(index.substitutesFor("salad", List.of("bread"), 5)));
+    }
+
+    // Test that a new meal can be found by the next lookup
+    @Test
+    public void testAddIsVisibleToNextLookup() {
+        assertEquals(List.of(), names(index.similarTo("pancakes", 5)));
+        index.add(meal("crepes", "flour", "milk", "eggs", "sugar", "butter"));
+        assertEquals(List.of("crepes"), names(index.similarTo("pancakes", 5)));
+        assertEquals(List.of("pancakes"), names(index.similarTo("crepes", 5)));
+    }
+
+    // Test that unknown meals and empty ingredients have no similar meals
+    @Test
+    public void testUnknownOrEmptyReturnsEmptyList() {
+        assertTrue(index.similarTo("pizza", 5).isEmpty());
+        assertTrue(index.substitutesFor("pizza", List.of("tomato"), 5).isEmpty());
+        assertTrue(index.similarTo(List.of(), 5).isEmpty());
+        index.add(meal("water"));
+        assertTrue(index.similarTo("water", 5).isEmpty());
+    }
+
+    private Meal meal(String name, String... ingredients) {
+        return new Meal(name, "lunch", ingredients);
+    }
+
+    private List<String> names(List<Meal> meals) {
+        return meals.stream().map(Meal::name).toList();
+    }
+}
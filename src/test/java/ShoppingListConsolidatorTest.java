@@ -0,0 +1,100 @@
+import io.github.dankoller.entity.Plan;
+import io.github.dankoller.shopping.ShoppingListConsolidator;
+import io.github.dankoller.shopping.ShoppingLists;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShoppingListConsolidatorTest {
+    private static final LocalDate MONDAY = LocalDate.of(2022, 10, 3);
+
+    private static final Map<String, List<String>> INGREDIENTS = Map.of(
+            "oatmeal", List.of("oats", "milk"),
+            "salad", List.of("tomato", "onion"),
+            "soup", List.of("tomato", "water"));
+
+    private int queries = 0;
+    private Set<String> requestedMeals;
+    // Only knows the ingredients of a fixed set of meals and remembers what has been asked for
+    private final ShoppingListConsolidator consolidator = new ShoppingListConsolidator(mealNames -> {
+        queries++;
+        requestedMeals = new HashSet<>(mealNames);
+        Map<String, List<String>> ingredients = new HashMap<>(INGREDIENTS);
+        ingredients.keySet().retainAll(mealNames);
+        return ingredients;
+    });
+
+    // Test for the shopping list of every plan
+    @Test
+    public void testShoppingListPerPlan() {
+        ShoppingLists lists = consolidator.consolidate(List.of(
+                List.of(new Plan(MONDAY, "oatmeal", "salad", "soup")),
+                List.of(new Plan(MONDAY, "oatmeal", "salad", "salad"))));
+        assertEquals(2, lists.plans().size());
+        assertEquals(sorted("oats", "milk", "tomato x2", "onion", "water"), sorted(lists.plans().get(0)));
+        assertEquals(sorted("oats", "milk", "tomato x2", "onion x2"), sorted(lists.plans().get(1)));
+    }
+
+    // Test for the consolidated shopping list of all plans
+    @Test
+    public void testConsolidatedShoppingList() {
+        ShoppingLists lists = consolidator.consolidate(List.of(
+                List.of(new Plan(MONDAY, "oatmeal", "salad", "soup"),
+                        new Plan(MONDAY.plusDays(1), "oatmeal", "soup", "soup")),
+                List.of(new Plan(MONDAY, "oatmeal", "salad", "salad"))));
+        assertEquals(sorted("oats x3", "milk x3", "tomato x6", "onion x3", "water x3"), sorted(lists.total()));
+    }
+
+    // Test that meals without ingredients are skipped
+    @Test
+    public void testUnknownMeals() {
+        ShoppingLists lists = consolidator.consolidate(List.of(
+                List.of(new Plan(MONDAY, "pancakes", "salad", "pizza")),
+                List.of(new Plan(MONDAY, "pancakes", "pizza", "pizza"))));
+        assertEquals(List.of(sorted("tomato", "onion"), List.of()), List.of(sorted(lists.plans().get(0)),
+                lists.plans().get(1)));
+        assertEquals(sorted("tomato", "onion"), sorted(lists.total()));
+    }
+
+    // Test for an empty list of plans
+    @Test
+    public void testNoPlans() {
+        ShoppingLists lists = consolidator.consolidate(List.of());
+        assertTrue(lists.plans().isEmpty());
+        assertTrue(lists.total().isEmpty());
+    }
+
+    // Test that plans sharing meals are counted separately, but the ingredients are fetched only once
+    @Test
+    public void testPlansSharingMeals() {
+        List<List<Plan>> plans = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String dinner = i % 2 == 0 ? "soup" : "salad";
+            plans.add(List.of(new Plan(MONDAY, "oatmeal", "salad", dinner)));
+        }
+        ShoppingLists lists = consolidator.consolidate(plans);
+        assertEquals(1000, lists.plans().size());
+        for (int i = 0; i < 1000; i++) {
+            List<String> expected = i % 2 == 0
+                    ? sorted("oats", "milk", "tomato x2", "onion", "water")
+                    : sorted("oats", "milk", "tomato x2", "onion x2");
+            assertEquals(expected, sorted(lists.plans().get(i)));
+        }
+        assertEquals(sorted("oats x1000", "milk x1000", "tomato x2000", "onion x1500", "water x500"),
+                sorted(lists.total()));
+        assertEquals(1, queries);
+        assertEquals(Set.of("oatmeal", "salad", "soup"), requestedMeals);
+    }
+
+    private List<String> sorted(String... ingredients) {
+        return sorted(List.of(ingredients));
+    }
+
+    private List<String> sorted(List<String> ingredients) {
+        return ingredients.stream().sorted().toList();
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.dankoller.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    // Test that latencies below 128 ns are recorded exactly
+    @Test
+    public void testLinearRangeIsExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 0; nanos < 128; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(128, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(63, histogram.getValueAtPercentile(50));
+        assertEquals(126, histogram.getValueAtPercentile(99));
+        assertEquals(127, histogram.getValueAtPercentile(100));
+    }
+
+    // Test that a percentile from 128 ns on is the upper bound of the bucket and less than 2% above the latency
+    @Test
+    public void testLogRangeIsWithinBucketBounds() {
+        for (long nanos = 128; nanos < 1_000_000_000_000L; nanos = nanos * 5 / 4 + 1) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(nanos);
+            histogram.record(Long.MAX_VALUE); // Keeps the percentile from being capped by the highest latency
+            long value = histogram.getValueAtPercentile(50);
+            assertTrue(value >= nanos && value <= nanos + nanos / 64, nanos + " ns was reported as " + value);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(128);
+        histogram.record(1000);
+        histogram.record(1001);
+        // From 128 ns on, the buckets are 2 ns wide, e.g. 128-129
+        assertEquals(129, histogram.getValueAtPercentile(33));
+        // 1000 and 1001 share the bucket 1000-1007, which is capped by the highest latency
+        assertEquals(1001, histogram.getValueAtPercentile(66));
+        assertEquals(1001, histogram.getValueAtPercentile(100));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(1007, histogram.getValueAtPercentile(75));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    // Test that adding a histogram merges the counts and the highest latency
+    @Test
+    public void testAddMergesHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            first.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            second.record(5_000);
+        }
+        first.add(second);
+        assertEquals(100, first.getTotalCount());
+        assertEquals(5_000, first.getMaxValue());
+        assertEquals(100, first.getValueAtPercentile(90));
+        assertEquals(5_000, first.getValueAtPercentile(91));
+        assertEquals(10, second.getTotalCount());
+    }
+
+    // Test that an empty histogram reports 0
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.add(new LatencyHistogram());
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(99.9));
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.dankoller.loadtest;
+
+import io.github.dankoller.loadtest.LoadGenerator.Config;
+import io.github.dankoller.loadtest.LoadGenerator.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadGeneratorTest {
+
+    // Test that options which are not given keep their default value
+    @Test
+    public void testDefaultOptions() {
+        Config config = LoadGenerator.parseArgs(new String[0]);
+        assertEquals("memory", config.repository());
+        assertEquals(16, config.sessions());
+        assertEquals(60, config.durationSeconds());
+        assertEquals(Map.of(Operation.ADD, 5, Operation.SHOW, 60, Operation.PLAN, 20, Operation.SAVE, 15),
+                config.mix());
+        assertEquals(10, config.reportSeconds());
+    }
+
+    // Test for parsing the given options
+    @Test
+    public void testParseOptions() {
+        Config config = LoadGenerator.parseArgs(new String[]{
+                "--sessions", "32", "--warmup", "0", "--mix", "add=1, SHOW=3,plan=0", "--pool", "4",
+                "--latency", "250", "--report", "1"});
+        assertEquals(32, config.sessions());
+        assertEquals(0, config.warmupSeconds());
+        assertEquals(Map.of(Operation.ADD, 1, Operation.SHOW, 3, Operation.PLAN, 0), config.mix());
+        assertEquals(4, config.poolSize());
+        assertEquals(250, config.latencyMicros());
+        assertEquals(1, config.reportSeconds());
+    }
+
+    // Test that unknown options and options without a value are rejected
+    @Test
+    public void testInvalidOptions() {
+        assertInvalid("--catalog, --duration", "--users", "10");
+        assertInvalid("--sessions", "--sessions");
+    }
+
+    // Test that invalid numbers are rejected with the range of valid values
+    @Test
+    public void testInvalidNumbers() {
+        assertInvalid("--report: 0. Choose a whole number from 1", "--report", "0");
+        assertInvalid("--sessions: -1. Choose a whole number from 1", "--sessions", "-1");
+        assertInvalid("--duration: -5. Choose a whole number from 1", "--duration", "-5");
+        assertInvalid("--pool: -2. Choose a whole number from 1", "--pool", "-2");
+        assertInvalid("--latency: -1. Choose a whole number from 0", "--latency", "-1");
+        assertInvalid("--warmup: ten. Choose a whole number from 0", "--warmup", "ten");
+    }
+
+    // Test that an invalid mix is rejected with the valid operations
+    @Test
+    public void testInvalidMix() {
+        assertInvalid("--mix: add. Use operation=ratio, where operation is one of: add, show, plan, save", "--mix",
+                "add");
+        assertInvalid("--mix: foo=1. Use operation=ratio, where operation is one of: add, show, plan, save", "--mix",
+                "show=1,foo=1");
+        assertInvalid("--mix: add=-1.", "--mix", "add=-1");
+        assertInvalid("--mix: add=1=2.", "--mix", "add=1=2");
+        assertInvalid("ratio above 0, choose from: add, show, plan, save", "--mix", "add=0");
+    }
+
+    private void assertInvalid(String message, String... args) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> LoadGenerator.parseArgs(args));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+}